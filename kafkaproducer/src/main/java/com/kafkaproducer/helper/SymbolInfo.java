@@ -0,0 +1,13 @@
+package com.kafkaproducer.helper;
+
+import java.util.List;
+
+/**
+ * Static reference data for a symbol: its GICS sector and the indices it belongs to.
+ */
+public record SymbolInfo(String sector, List<String> indices) {
+
+    public static final String UNKNOWN_SECTOR = "Unknown";
+
+    public static final SymbolInfo UNKNOWN = new SymbolInfo(UNKNOWN_SECTOR, List.of());
+}
@@ -1,6 +1,7 @@
 package com.kafkaproducer.helper;
 
 import java.util.List;
+import java.util.Map;
 
 public class Symbols {
     public static final List<String> SYMBOLS = List.of(
@@ -100,4 +101,112 @@ public class Symbols {
             "ZS"
     );
 
+    // Index codes used in SymbolInfo.indices()
+    public static final String SP500 = "SP500";
+    public static final String NASDAQ100 = "NASDAQ100";
+    public static final String DJIA = "DJIA";
+
+    // Sector and index membership per symbol, used for market-breadth aggregation downstream
+    public static final Map<String, SymbolInfo> METADATA = Map.ofEntries(
+            Map.entry("AAPL", info("Technology", SP500, NASDAQ100, DJIA)),
+            Map.entry("AMZN", info("Consumer Discretionary", SP500, NASDAQ100, DJIA)),
+            Map.entry("MSFT", info("Technology", SP500, NASDAQ100, DJIA)),
+            Map.entry("GOOGL", info("Communication Services", SP500, NASDAQ100)),
+            Map.entry("GOOG", info("Communication Services", SP500, NASDAQ100)),
+            Map.entry("META", info("Communication Services", SP500, NASDAQ100)),
+            Map.entry("TSLA", info("Consumer Discretionary", SP500, NASDAQ100)),
+            Map.entry("NVDA", info("Technology", SP500, NASDAQ100, DJIA)),
+            Map.entry("NFLX", info("Communication Services", SP500, NASDAQ100)),
+            Map.entry("AMD", info("Technology", SP500, NASDAQ100)),
+            Map.entry("INTC", info("Technology", SP500, NASDAQ100)),
+            Map.entry("IBM", info("Technology", SP500, DJIA)),
+            Map.entry("ORCL", info("Technology", SP500)),
+            Map.entry("CRM", info("Technology", SP500, DJIA)),
+            Map.entry("ABNB", info("Consumer Discretionary", SP500, NASDAQ100)),
+            Map.entry("BABA", info("Consumer Discretionary")),
+            Map.entry("BAC", info("Financials", SP500)),
+            Map.entry("BA", info("Industrials", SP500, DJIA)),
+            Map.entry("CAT", info("Industrials", SP500, DJIA)),
+            Map.entry("CSCO", info("Technology", SP500, NASDAQ100, DJIA)),
+            Map.entry("CMCSA", info("Communication Services", SP500, NASDAQ100)),
+            Map.entry("C", info("Financials", SP500)),
+            Map.entry("COST", info("Consumer Staples", SP500, NASDAQ100)),
+            Map.entry("CVS", info("Health Care", SP500)),
+            Map.entry("CVX", info("Energy", SP500, DJIA)),
+
+            Map.entry("DIS", info("Communication Services", SP500, DJIA)),
+            Map.entry("DAL", info("Industrials", SP500)),
+            Map.entry("DE", info("Industrials", SP500)),
+            Map.entry("DELL", info("Technology", SP500)),
+            Map.entry("DOCU", info("Technology")),
+            Map.entry("EBAY", info("Consumer Discretionary", SP500)),
+            Map.entry("ECL", info("Materials", SP500)),
+            Map.entry("EMR", info("Industrials", SP500)),
+            Map.entry("EXPE", info("Consumer Discretionary", SP500)),
+            Map.entry("F", info("Consumer Discretionary", SP500)),
+            Map.entry("GM", info("Consumer Discretionary", SP500)),
+            Map.entry("GE", info("Industrials", SP500)),
+            Map.entry("GS", info("Financials", SP500, DJIA)),
+            Map.entry("HD", info("Consumer Discretionary", SP500, DJIA)),
+            Map.entry("HON", info("Industrials", SP500, NASDAQ100, DJIA)),
+            Map.entry("ISRG", info("Health Care", SP500, NASDAQ100)),
+            Map.entry("JNJ", info("Health Care", SP500, DJIA)),
+            Map.entry("JPM", info("Financials", SP500, DJIA)),
+
+            Map.entry("KO", info("Consumer Staples", SP500, DJIA)),
+            Map.entry("KHC", info("Consumer Staples", SP500, NASDAQ100)),
+            Map.entry("LLY", info("Health Care", SP500)),
+            Map.entry("LMT", info("Industrials", SP500)),
+            Map.entry("MA", info("Financials", SP500)),
+            Map.entry("MCD", info("Consumer Discretionary", SP500, DJIA)),
+            Map.entry("MDT", info("Health Care", SP500)),
+            Map.entry("MMM", info("Industrials", SP500, DJIA)),
+            Map.entry("MO", info("Consumer Staples", SP500)),
+            Map.entry("MRK", info("Health Care", SP500, DJIA)),
+            Map.entry("NKE", info("Consumer Discretionary", SP500, DJIA)),
+            Map.entry("NOC", info("Industrials", SP500)),
+            Map.entry("NEM", info("Materials", SP500)),
+            Map.entry("NEP", info("Utilities")),
+            Map.entry("NTES", info("Communication Services", NASDAQ100)),
+
+            Map.entry("PANW", info("Technology", SP500, NASDAQ100)),
+            Map.entry("PEP", info("Consumer Staples", SP500, NASDAQ100)),
+            Map.entry("PFE", info("Health Care", SP500)),
+            Map.entry("PG", info("Consumer Staples", SP500, DJIA)),
+            Map.entry("PLTR", info("Technology", SP500, NASDAQ100)),
+            Map.entry("PYPL", info("Financials", SP500, NASDAQ100)),
+            Map.entry("QCOM", info("Technology", SP500, NASDAQ100)),
+            Map.entry("RBLX", info("Communication Services")),
+            Map.entry("RIVN", info("Consumer Discretionary")),
+            Map.entry("RTX", info("Industrials", SP500)),
+            Map.entry("SBUX", info("Consumer Discretionary", SP500, NASDAQ100)),
+            Map.entry("SHOP", info("Technology", NASDAQ100)),
+            Map.entry("SNAP", info("Communication Services")),
+            Map.entry("SONY", info("Consumer Discretionary")),
+            Map.entry("SPOT", info("Communication Services")),
+            Map.entry("SQ", info("Financials", SP500)),
+            Map.entry("T", info("Communication Services", SP500)),
+
+            Map.entry("TM", info("Consumer Discretionary")),
+            Map.entry("TSM", info("Technology")),
+            Map.entry("UBER", info("Industrials", SP500)),
+            Map.entry("UNH", info("Health Care", SP500, DJIA)),
+            Map.entry("UPS", info("Industrials", SP500)),
+            Map.entry("V", info("Financials", SP500, DJIA)),
+            Map.entry("VZ", info("Communication Services", SP500, DJIA)),
+            Map.entry("WMT", info("Consumer Staples", SP500, NASDAQ100, DJIA)),
+            Map.entry("WFC", info("Financials", SP500)),
+            Map.entry("XOM", info("Energy", SP500)),
+            Map.entry("ZM", info("Technology")),
+            Map.entry("ZS", info("Technology", NASDAQ100))
+    );
+
+    public static SymbolInfo infoFor(String symbol) {
+        return METADATA.getOrDefault(symbol, SymbolInfo.UNKNOWN);
+    }
+
+    private static SymbolInfo info(String sector, String... indices) {
+        return new SymbolInfo(sector, List.of(indices));
+    }
+
 }
@@ -2,6 +2,7 @@ package com.kafkaproducer.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kafkaproducer.helper.SymbolInfo;
 import com.kafkaproducer.helper.Symbols;
 import okhttp3.*;
 import org.apache.kafka.clients.producer.*;
@@ -89,6 +90,8 @@ public class StockProducer {
                             // Extract required fields
                             Double close = latestObj.get("4. close").asDouble();
                             Double open = latestObj.get("1. open").asDouble();
+                            Double high = latestObj.get("2. high").asDouble();
+                            Double low = latestObj.get("3. low").asDouble();
                             Long volume = latestObj.get("5. volume").asLong();
 
                             // Get previous day close (used later for price comparison)
@@ -98,14 +101,36 @@ public class StockProducer {
                                 prevClose = ts.get(prev).get("4. close").asDouble();
                             }
 
+                            // Highest high / lowest low of the earlier sessions in the series, used for new
+                            // period high/low counts. With outputsize=compact the period is the ~99 sessions
+                            // before the latest one, not the conventional 52 weeks.
+                            Double periodHigh = null;
+                            Double periodLow = null;
+                            for (int i = 1; i < dateList.size(); i++) {
+                                JsonNode day = ts.get(dateList.get(i));
+                                double dayHigh = day.get("2. high").asDouble();
+                                double dayLow = day.get("3. low").asDouble();
+                                if (periodHigh == null || dayHigh > periodHigh) periodHigh = dayHigh;
+                                if (periodLow == null || dayLow < periodLow) periodLow = dayLow;
+                            }
+
+                            // Static sector / index membership for the symbol
+                            SymbolInfo info = Symbols.infoFor(sym);
+
                             // Prepare message payload
                             Map<String,Object> msg = new HashMap<>();
                             msg.put("symbol", sym);
                             msg.put("date", latest);
                             msg.put("open", open);
                             msg.put("close", close);
+                            msg.put("high", high);
+                            msg.put("low", low);
                             msg.put("volume", volume);
                             msg.put("prevClose", prevClose);
+                            msg.put("periodHigh", periodHigh);
+                            msg.put("periodLow", periodLow);
+                            msg.put("sector", info.sector());
+                            msg.put("indices", info.indices());
                             msg.put("fetchedAt", Instant.now().toString());
 
                             // Convert message to JSON
@@ -29,4 +29,14 @@ public class StockDashboardController {
     public Map<String, Object> getActive() {
         return service.getActiveStocks();
     }
+
+    @GetMapping("/sectors")
+    public List<Map<String, Object>> getSectors() {
+        return service.getSectorBreadth();
+    }
+
+    @GetMapping("/indices")
+    public List<Map<String, Object>> getIndices() {
+        return service.getIndexBreadth();
+    }
 }
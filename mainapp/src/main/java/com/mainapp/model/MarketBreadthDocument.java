@@ -0,0 +1,33 @@
+package com.mainapp.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "marketBreadth")
+@Data
+public class MarketBreadthDocument {
+
+    // "groupType:name", e.g. "sector:Technology" or "index:SP500"
+    @Id
+    private String id;
+
+    // market | sector | index
+    private String groupType;
+    private String name;
+
+    private Integer members;
+    private Integer advancers;
+    private Integer decliners;
+    private Integer unchanged;
+    // Day's high/low beyond the earlier ~99 sessions of the compact daily series (not 52-week)
+    private Integer newPeriodHighs;
+    private Integer newPeriodLows;
+    private Long totalVolume;
+    private Double weightedChangePercent;
+    private Double averageChangePercent;
+    private Instant updatedAt;
+
+}
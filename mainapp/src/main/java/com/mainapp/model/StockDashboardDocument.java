@@ -5,6 +5,7 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.List;
 
 @Document(collection = "stockDashboard")
 @Data
@@ -20,6 +21,11 @@ public class StockDashboardDocument {
     private Double changePercent;
     private Long volume;
     private Double prevClose;
+    private String sector;
+    private List<String> indices;
+    // Day's high/low beyond the earlier ~99 sessions of the compact daily series (not 52-week)
+    private Boolean newPeriodHigh;
+    private Boolean newPeriodLow;
     private String fetchedAt;
     private Instant updatedAt;
 
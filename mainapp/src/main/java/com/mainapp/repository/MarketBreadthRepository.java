@@ -0,0 +1,17 @@
+package com.mainapp.repository;
+
+import com.mainapp.model.MarketBreadthDocument;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MarketBreadthRepository extends MongoRepository<MarketBreadthDocument, String> {
+
+    Optional<MarketBreadthDocument> findByGroupTypeAndName(String groupType, String name);
+
+    List<MarketBreadthDocument> findByGroupTypeOrderByWeightedChangePercentDesc(String groupType);
+
+}
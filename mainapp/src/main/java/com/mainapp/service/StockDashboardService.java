@@ -1,17 +1,96 @@
 package com.mainapp.service;
 
+import com.mainapp.model.MarketBreadthDocument;
 import com.mainapp.model.StockDashboardDocument;
+import com.mainapp.repository.MarketBreadthRepository;
 import com.mainapp.repository.StockDashboardRepository;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 @Service
 public class StockDashboardService {
+    // After a failed Mongo read, don't try again for this long so an outage doesn't stall every request
+    private static final long MONGO_BACKOFF_MS = 30_000;
+    // How long the cached market breadth is served before it is read again
+    private static final long BREADTH_REFRESH_MS = 5_000;
+
     private final StockDashboardRepository repo;
+    private final MarketBreadthRepository breadthRepo;
+    private final StockLatestStateView latestView;
 
-    public StockDashboardService(StockDashboardRepository repo) {
+    public StockDashboardService(StockDashboardRepository repo, MarketBreadthRepository breadthRepo,
+                                 StockLatestStateView latestView) {
         this.repo = repo;
+        this.breadthRepo = breadthRepo;
+        this.latestView = latestView;
+    }
+
+    // Last successful stockDashboard read by symbol (null until the first one), used to spot
+    // symbols the view is missing
+    private volatile Map<String, StockDashboardDocument> mongoSnapshot;
+    private volatile long mongoRetryAt;
+
+    private volatile MarketBreadthDocument cachedBreadth;
+    private volatile long breadthRefreshAt;
+
+    // Latest quote per symbol. Served straight from the Kafka-backed view when it is warm and has
+    // every symbol Mongo last had; otherwise Mongo and the view are merged, newest state winning,
+    // so a cold, empty or incomplete view and a Mongo outage each fall back to the other.
+    List<StockDashboardDocument> latestAll() {
+        Map<String, StockDashboardDocument> snapshot = mongoSnapshot;
+        if (latestView.isWarm() && snapshot != null && latestView.containsAll(snapshot.keySet())) {
+            List<StockDashboardDocument> fromView = latestView.getAll();
+            if (!fromView.isEmpty()) return fromView;
+        }
+
+        Map<String, StockDashboardDocument> fresh = readMongo();
+        if (fresh != null) snapshot = fresh;
+
+        Map<String, StockDashboardDocument> merged = snapshot == null ? new HashMap<>() : new HashMap<>(snapshot);
+        for (StockDashboardDocument doc : latestView.getAll()) {
+            StockDashboardDocument other = merged.get(doc.getSymbol());
+            if (other == null || !isNewer(other, doc)) merged.put(doc.getSymbol(), doc);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private Map<String, StockDashboardDocument> readMongo() {
+        if (System.currentTimeMillis() < mongoRetryAt) return null;
+        try {
+            Map<String, StockDashboardDocument> bySymbol = new HashMap<>();
+            for (StockDashboardDocument doc : repo.findAll()) {
+                bySymbol.put(doc.getSymbol(), doc);
+            }
+            mongoSnapshot = bySymbol;
+            return bySymbol;
+        } catch (DataAccessException e) {
+            mongoRetryAt = System.currentTimeMillis() + MONGO_BACKOFF_MS;
+            return null;
+        }
+    }
+
+    private static boolean isNewer(StockDashboardDocument a, StockDashboardDocument b) {
+        int byDate = Objects.compare(a.getLatestDate(), b.getLatestDate(), Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+        if (byDate != 0) return byDate > 0;
+        return Objects.compare(a.getUpdatedAt(), b.getUpdatedAt(), Comparator.nullsFirst(Comparator.<Instant>naturalOrder())) > 0;
+    }
+
+    // Market-wide breadth from Mongo, cached so /info only reads it every few seconds and keeps
+    // the last value (without waiting on Mongo) during an outage
+    private MarketBreadthDocument marketBreadth() {
+        long now = System.currentTimeMillis();
+        if (now >= breadthRefreshAt && now >= mongoRetryAt) {
+            breadthRefreshAt = now + BREADTH_REFRESH_MS;
+            try {
+                cachedBreadth = breadthRepo.findByGroupTypeAndName("market", "ALL").orElse(null);
+            } catch (DataAccessException e) {
+                mongoRetryAt = now + MONGO_BACKOFF_MS;
+            }
+        }
+        return cachedBreadth;
     }
 
     private String formatDollar(Double val) {
@@ -35,7 +114,7 @@ public class StockDashboardService {
     // --------------------- API #1 ---------------------
     // /stock-api/info
     public Map<String, Object> getMarketInfo() {
-        List<StockDashboardDocument> all = repo.findAll();
+        List<StockDashboardDocument> all = latestAll();
         if (all.isEmpty()) return Collections.emptyMap();
 
         // Leader = highest price
@@ -58,13 +137,23 @@ public class StockDashboardService {
         res.put("worstStock", worst.getSymbol());
         res.put("worstStockPercentage", formatPercent(worst.getChangePercent()));
 
+        // Market-wide breadth, maintained incrementally by the stream processor
+        MarketBreadthDocument breadth = marketBreadth();
+        if (breadth != null) {
+            res.put("advancers", breadth.getAdvancers());
+            res.put("decliners", breadth.getDecliners());
+            res.put("newPeriodHighs", breadth.getNewPeriodHighs());
+            res.put("newPeriodLows", breadth.getNewPeriodLows());
+            res.put("totalVolume", formatMillions(breadth.getTotalVolume()));
+        }
+
         return res;
     }
 
     // --------------------- API #2 ---------------------
     // /stock-api/market-summary
     public List<Map<String, String>> getMarketSummary() {
-        List<StockDashboardDocument> all = repo.findAll();
+        List<StockDashboardDocument> all = latestAll();
 
         return all.stream().map(doc -> {
             Map<String, String> m = new HashMap<>();
@@ -80,7 +169,7 @@ public class StockDashboardService {
     // /stock-api/active-stocks
     public Map<String, Object> getActiveStocks() {
 
-        List<StockDashboardDocument> all = repo.findAll();
+        List<StockDashboardDocument> all = latestAll();
 
         // Biggest Gainers (TOP 5)
         List<Map<String, Object>> gainers = all.stream()
@@ -123,4 +212,35 @@ public class StockDashboardService {
         output.put("biggestLosers", losers);
         return output;
     }
+
+    // --------------------- API #4 ---------------------
+    // /stock-api/sectors
+    public List<Map<String, Object>> getSectorBreadth() {
+        return getBreadth("sector");
+    }
+
+    // --------------------- API #5 ---------------------
+    // /stock-api/indices
+    public List<Map<String, Object>> getIndexBreadth() {
+        return getBreadth("index");
+    }
+
+    private List<Map<String, Object>> getBreadth(String groupType) {
+        return breadthRepo.findByGroupTypeOrderByWeightedChangePercentDesc(groupType).stream()
+                .filter(b -> b.getMembers() != null && b.getMembers() > 0)
+                .map(b -> {
+                    Map<String, Object> m = new HashMap<>();
+                    m.put("name", b.getName());
+                    m.put("members", b.getMembers());
+                    m.put("changePercent", formatPercent(b.getWeightedChangePercent()));
+                    m.put("averageChangePercent", formatPercent(b.getAverageChangePercent()));
+                    m.put("advancers", b.getAdvancers());
+                    m.put("decliners", b.getDecliners());
+                    m.put("unchanged", b.getUnchanged());
+                    m.put("newPeriodHighs", b.getNewPeriodHighs());
+                    m.put("newPeriodLows", b.getNewPeriodLows());
+                    m.put("volume", formatMillions(b.getTotalVolume()));
+                    return m;
+                }).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,216 @@
+package com.mainapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mainapp.model.StockDashboardDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory, symbol-indexed view of the latest dashboard state, built from the log-compacted
+ * stock-latest topic that the stream processor publishes to.
+ *
+ * On startup the whole topic is replayed from the beginning; once every partition has been read
+ * up to the end offset seen at startup the view is marked warm and serves reads without touching
+ * Mongo. It keeps following the topic afterwards, so it stays current even while Mongo is down.
+ * If the broker can't be reached the view stops being warm and reconnects, replaying the topic.
+ */
+@Component
+public class StockLatestStateView {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLatestStateView.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration KAFKA_TIMEOUT = Duration.ofSeconds(10);
+
+    // How often the broker is checked while consuming; poll() alone doesn't fail when it is gone
+    private static final long LIVENESS_CHECK_MS = 30_000;
+    private static final long RECONNECT_BACKOFF_MS = 5_000;
+
+    private final ObjectMapper mapper;
+    private final boolean enabled;
+    private final String bootstrapServers;
+    private final String topic;
+
+    private final Map<String, StockDashboardDocument> bySymbol = new ConcurrentHashMap<>();
+
+    private volatile boolean warm;
+    private volatile boolean running;
+    private volatile Consumer<String, String> consumer;
+    private Thread thread;
+
+    public StockLatestStateView(ObjectMapper mapper,
+                                @Value("${stock.latest.enabled:true}") boolean enabled,
+                                @Value("${stock.latest.bootstrap-servers:localhost:9092}") String bootstrapServers,
+                                @Value("${stock.latest.topic:stock-latest}") String topic) {
+        this.mapper = mapper;
+        this.enabled = enabled;
+        this.bootstrapServers = bootstrapServers;
+        this.topic = topic;
+    }
+
+    // True while the view is connected and has replayed the compacted log up to where it was
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public List<StockDashboardDocument> getAll() {
+        return new ArrayList<>(bySymbol.values());
+    }
+
+    public boolean containsAll(Collection<String> symbols) {
+        return bySymbol.keySet().containsAll(symbols);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+
+        // Warm-up runs in the background so startup isn't blocked on Kafka
+        running = true;
+        thread = new Thread(this::run, "stock-latest-view");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Consumer<String, String> c = consumer;
+        if (c != null) c.wakeup();
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5000);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Consumer<String, String> c = createConsumer()) {
+                consumer = c;
+                consume(c);
+            } catch (WakeupException e) {
+                // woken up by stop()
+            } catch (Exception e) {
+                if (running) log.warn("Lost {}; serving from Mongo until the view has caught up again", topic, e);
+            } finally {
+                consumer = null;
+                warm = false;
+            }
+
+            if (!running) break;
+            try {
+                Thread.sleep(RECONNECT_BACKOFF_MS);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private Consumer<String, String> createConsumer() {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        // Every instance rebuilds the full view itself, so no consumer group and no committed offsets
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        // The processor creates the topic as compacted; an auto-created one would use delete
+        props.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        return new KafkaConsumer<>(props);
+    }
+
+    private void consume(Consumer<String, String> c) {
+        List<TopicPartition> partitions = waitForPartitions(c);
+        if (partitions.isEmpty()) return;
+
+        c.assign(partitions);
+        c.seekToBeginning(partitions);
+        Map<TopicPartition, Long> warmUpEnd = c.endOffsets(partitions, KAFKA_TIMEOUT);
+
+        long nextLivenessCheck = System.currentTimeMillis() + LIVENESS_CHECK_MS;
+        while (running) {
+            pollOnce(c, warmUpEnd);
+
+            if (System.currentTimeMillis() >= nextLivenessCheck) {
+                // throws a TimeoutException if the broker is gone, which drops the view out of warm
+                c.endOffsets(partitions, KAFKA_TIMEOUT);
+                nextLivenessCheck = System.currentTimeMillis() + LIVENESS_CHECK_MS;
+            }
+        }
+    }
+
+    private List<TopicPartition> waitForPartitions(Consumer<String, String> c) {
+        while (running) {
+            List<PartitionInfo> infos = c.partitionsFor(topic, KAFKA_TIMEOUT);
+            if (infos != null && !infos.isEmpty()) {
+                List<TopicPartition> partitions = new ArrayList<>(infos.size());
+                for (PartitionInfo info : infos) {
+                    partitions.add(new TopicPartition(info.topic(), info.partition()));
+                }
+                return partitions;
+            }
+
+            // the processor hasn't created the topic yet
+            log.info("Waiting for topic {} to be created", topic);
+            try {
+                Thread.sleep(RECONNECT_BACKOFF_MS);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        return List.of();
+    }
+
+    // One poll: applies the records and marks the view warm once it reaches the warm-up end offsets
+    void pollOnce(Consumer<String, String> c, Map<TopicPartition, Long> warmUpEnd) {
+        for (ConsumerRecord<String, String> record : c.poll(POLL_TIMEOUT)) {
+            apply(record);
+        }
+        if (!warm && caughtUp(c, warmUpEnd)) {
+            warm = true;
+            log.info("Latest-state view warm: {} symbols from {}", bySymbol.size(), topic);
+        }
+    }
+
+    private boolean caughtUp(Consumer<String, String> c, Map<TopicPartition, Long> end) {
+        for (Map.Entry<TopicPartition, Long> e : end.entrySet()) {
+            if (c.position(e.getKey()) < e.getValue()) return false;
+        }
+        return true;
+    }
+
+    void apply(ConsumerRecord<String, String> record) {
+        String symbol = record.key();
+        if (symbol == null) return;
+
+        // Tombstone: symbol was removed
+        if (record.value() == null) {
+            bySymbol.remove(symbol);
+            return;
+        }
+
+        try {
+            bySymbol.put(symbol, mapper.readValue(record.value(), StockDashboardDocument.class));
+        } catch (IOException e) {
+            log.warn("Skipping unreadable {} record for {} at offset {}: {}", topic, symbol, record.offset(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.mainapp.service;
+
+import com.mainapp.model.StockDashboardDocument;
+import com.mainapp.repository.MarketBreadthRepository;
+import com.mainapp.repository.StockDashboardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StockDashboardServiceTests {
+
+    private StockDashboardRepository repo;
+    private StockLatestStateView view;
+    private StockDashboardService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(StockDashboardRepository.class);
+        view = mock(StockLatestStateView.class);
+        service = new StockDashboardService(repo, mock(MarketBreadthRepository.class), view);
+    }
+
+    private static StockDashboardDocument doc(String symbol, String date, double price) {
+        StockDashboardDocument doc = new StockDashboardDocument();
+        doc.setSymbol(symbol);
+        doc.setLatestDate(date);
+        doc.setTodayPrice(price);
+        doc.setUpdatedAt(Instant.parse(date + "T21:00:00Z"));
+        return doc;
+    }
+
+    private void viewHas(boolean warm, StockDashboardDocument... docs) {
+        List<StockDashboardDocument> all = List.of(docs);
+        Set<String> symbols = all.stream().map(StockDashboardDocument::getSymbol).collect(Collectors.toSet());
+        when(view.isWarm()).thenReturn(warm);
+        when(view.getAll()).thenReturn(all);
+        when(view.containsAll(any())).thenAnswer(inv -> symbols.containsAll(inv.<Collection<String>>getArgument(0)));
+    }
+
+    private static Set<String> symbols(List<StockDashboardDocument> docs) {
+        return docs.stream().map(StockDashboardDocument::getSymbol).collect(Collectors.toSet());
+    }
+
+    @Test
+    void coldViewReadsMongo() {
+        viewHas(false);
+        when(repo.findAll()).thenReturn(List.of(doc("AAPL", "2024-01-02", 190.0)));
+
+        assertEquals(Set.of("AAPL"), symbols(service.latestAll()));
+    }
+
+    @Test
+    void mongoFailureServesView() {
+        viewHas(false, doc("AAPL", "2024-01-02", 190.0));
+        when(repo.findAll()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertEquals(Set.of("AAPL"), symbols(service.latestAll()));
+    }
+
+    @Test
+    void mongoIsNotRetriedRightAfterFailure() {
+        viewHas(false, doc("AAPL", "2024-01-02", 190.0));
+        when(repo.findAll()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        service.latestAll();
+        service.latestAll();
+
+        verify(repo, times(1)).findAll();
+    }
+
+    @Test
+    void warmButEmptyViewFallsBackToMongo() {
+        viewHas(true);
+        when(repo.findAll()).thenReturn(List.of(doc("AAPL", "2024-01-02", 190.0)));
+
+        assertEquals(Set.of("AAPL"), symbols(service.latestAll()));
+    }
+
+    @Test
+    void warmViewMissingSymbolsIsMergedWithMongo() {
+        viewHas(true, doc("AAPL", "2024-01-03", 195.0));
+        when(repo.findAll()).thenReturn(List.of(
+                doc("AAPL", "2024-01-02", 190.0),
+                doc("MSFT", "2024-01-02", 370.0)));
+
+        List<StockDashboardDocument> all = service.latestAll();
+
+        assertEquals(Set.of("AAPL", "MSFT"), symbols(all));
+        // the newer state wins
+        assertEquals(195.0, all.stream().filter(d -> d.getSymbol().equals("AAPL")).findFirst().orElseThrow().getTodayPrice());
+    }
+
+    @Test
+    void completeWarmViewSkipsMongo() {
+        viewHas(true, doc("AAPL", "2024-01-02", 190.0), doc("MSFT", "2024-01-02", 370.0));
+        when(repo.findAll()).thenReturn(List.of(doc("AAPL", "2024-01-02", 190.0)));
+
+        service.latestAll();
+        service.latestAll();
+        service.latestAll();
+
+        // only the first read, to learn which symbols Mongo has
+        verify(repo, times(1)).findAll();
+    }
+}
@@ -0,0 +1,94 @@
+package com.mainapp.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockLatestStateViewTests {
+
+    private static final String TOPIC = "stock-latest";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    private StockLatestStateView view;
+    private MockConsumer<String, String> consumer;
+
+    @BeforeEach
+    void setUp() {
+        view = new StockLatestStateView(Jackson2ObjectMapperBuilder.json().build(), false, "unused", TOPIC);
+
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(List.of(PARTITION));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+    }
+
+    private static String state(String symbol, double price) {
+        return "{\"symbol\":\"" + symbol + "\",\"latestDate\":\"2024-01-02\",\"todayPrice\":" + price
+                + ",\"updatedAt\":\"2024-01-02T21:00:00Z\"}";
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String symbol, String value) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, symbol, value);
+    }
+
+    @Test
+    void emptyTopicIsWarmAfterFirstPoll() {
+        assertFalse(view.isWarm());
+
+        view.pollOnce(consumer, Map.of(PARTITION, 0L));
+
+        assertTrue(view.isWarm());
+        assertTrue(view.getAll().isEmpty());
+    }
+
+    @Test
+    void warmOnlyOnceWarmUpEndIsReached() {
+        Map<TopicPartition, Long> warmUpEnd = Map.of(PARTITION, 2L);
+
+        consumer.addRecord(record(0, "AAPL", state("AAPL", 190.0)));
+        view.pollOnce(consumer, warmUpEnd);
+        assertFalse(view.isWarm());
+        assertEquals(1, view.getAll().size());
+
+        consumer.addRecord(record(1, "MSFT", state("MSFT", 370.0)));
+        view.pollOnce(consumer, warmUpEnd);
+        assertTrue(view.isWarm());
+        assertEquals(2, view.getAll().size());
+        assertTrue(view.containsAll(List.of("AAPL", "MSFT")));
+    }
+
+    @Test
+    void laterRecordReplacesEarlierOne() {
+        view.apply(record(0, "AAPL", state("AAPL", 190.0)));
+        view.apply(record(1, "AAPL", state("AAPL", 195.5)));
+
+        assertEquals(1, view.getAll().size());
+        assertEquals(195.5, view.getAll().get(0).getTodayPrice());
+    }
+
+    @Test
+    void tombstoneRemovesSymbol() {
+        view.apply(record(0, "AAPL", state("AAPL", 190.0)));
+        view.apply(record(1, "AAPL", null));
+
+        assertTrue(view.getAll().isEmpty());
+    }
+
+    @Test
+    void badRecordIsSkipped() {
+        view.apply(record(0, "AAPL", state("AAPL", 190.0)));
+        view.apply(record(1, "AAPL", "{not json"));
+        view.apply(record(2, null, state("MSFT", 370.0)));
+
+        assertEquals(1, view.getAll().size());
+        assertEquals(190.0, view.getAll().get(0).getTodayPrice());
+    }
+}
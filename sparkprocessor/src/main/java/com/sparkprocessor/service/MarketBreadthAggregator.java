@@ -0,0 +1,231 @@
+package com.sparkprocessor.service;
+
+import org.bson.Document;
+
+import java.util.*;
+
+/**
+ * Keeps sector, index and market-wide breadth aggregates up to date one tick at a time.
+ *
+ * Each symbol's last applied contribution is remembered, so a new tick only has to back that
+ * contribution out of the groups it belonged to and add the new one in. The cost per tick is
+ * proportional to the number of groups a symbol belongs to, not to the size of the universe.
+ * Lives on the Spark driver and is fed from foreachBatch.
+ */
+public class MarketBreadthAggregator {
+
+    public static final String MARKET = "market";
+    public static final String SECTOR = "sector";
+    public static final String INDEX = "index";
+    public static final String ALL = "ALL";
+
+    private static final String UNKNOWN_SECTOR = "Unknown";
+
+    // Last contribution applied for each symbol
+    private final Map<String, Contribution> bySymbol = new HashMap<>();
+
+    // Running aggregates keyed by "groupType:name"
+    private final Map<String, GroupStats> groups = new HashMap<>();
+
+    // Groups changed since they were last written
+    private final Set<String> dirty = new LinkedHashSet<>();
+
+    /**
+     * Applies one tick. Ticks older than the one already applied for the symbol are ignored.
+     *
+     * @return true if the aggregates changed
+     */
+    public boolean apply(Contribution next) {
+        Contribution prev = bySymbol.get(next.symbol());
+        if (prev != null && prev.date() != null && next.date() != null
+                && next.date().compareTo(prev.date()) < 0) {
+            return false;
+        }
+
+        if (prev != null) {
+            for (String key : prev.groupKeys()) {
+                groups.get(key).accumulate(prev, -1);
+                dirty.add(key);
+            }
+        }
+        for (String key : next.groupKeys()) {
+            groups.computeIfAbsent(key, GroupStats::new).accumulate(next, 1);
+            dirty.add(key);
+        }
+        bySymbol.put(next.symbol(), next);
+        return true;
+    }
+
+    /**
+     * Rebuilds the state from stockDashboard documents, e.g. after a restart where the
+     * stream resumes from its checkpoint and would otherwise only see new ticks. Symbols that
+     * already ticked in this process are left alone, so seeding can be retried late.
+     */
+    public void seed(Iterable<Document> dashboardDocs) {
+        for (Document doc : dashboardDocs) {
+            if (bySymbol.containsKey(doc.getString("symbol"))) continue;
+            apply(new Contribution(
+                    doc.getString("symbol"),
+                    doc.getString("latestDate"),
+                    doc.getString("sector"),
+                    doc.getList("indices", String.class),
+                    toLong(doc.get("volume")),
+                    toDouble(doc.get("priceChange")),
+                    toDouble(doc.get("prevClose")),
+                    toDouble(doc.get("changePercent")),
+                    Boolean.TRUE.equals(doc.getBoolean("newPeriodHigh")),
+                    Boolean.TRUE.equals(doc.getBoolean("newPeriodLow"))
+            ));
+        }
+    }
+
+    /**
+     * Returns a marketBreadth document for every group changed since it was last written.
+     * Groups stay pending until {@link #written(Document)} is called for them, so a failed
+     * write is picked up again next time.
+     */
+    public List<Document> pendingWrites(Date updatedAt) {
+        List<Document> docs = new ArrayList<>(dirty.size());
+        for (String key : dirty) {
+            docs.add(groups.get(key).toDocument(updatedAt));
+        }
+        return docs;
+    }
+
+    public boolean hasPendingWrites() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Marks a document returned by {@link #pendingWrites(Date)} as stored.
+     */
+    public void written(Document groupDoc) {
+        dirty.remove(groupDoc.getString("_id"));
+    }
+
+    // Current aggregate for a group as a marketBreadth document, or null if it was never seen
+    Document group(String groupType, String name) {
+        GroupStats stats = groups.get(key(groupType, name));
+        return stats == null ? null : stats.toDocument(null);
+    }
+
+    private static Double toDouble(Object val) {
+        return val instanceof Number n ? n.doubleValue() : null;
+    }
+
+    private static Long toLong(Object val) {
+        return val instanceof Number n ? n.longValue() : null;
+    }
+
+    private static String key(String groupType, String name) {
+        return groupType + ":" + name;
+    }
+
+    /**
+     * What a single symbol's latest tick adds to each of its groups.
+     */
+    public record Contribution(String symbol, String date, String sector, List<String> indices,
+                               Long volume, Double change, Double prevClose, Double changePercent,
+                               boolean newPeriodHigh, boolean newPeriodLow) {
+
+        List<String> groupKeys() {
+            List<String> keys = new ArrayList<>(2 + (indices == null ? 0 : indices.size()));
+            keys.add(key(MARKET, ALL));
+            keys.add(key(SECTOR, sector == null ? UNKNOWN_SECTOR : sector));
+            if (indices != null) {
+                for (String index : indices) keys.add(key(INDEX, index));
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Running totals for one group. Every field is a plain sum so a contribution can be removed
+     * exactly the way it was added.
+     */
+    static class GroupStats {
+        private final String id;
+        private final String groupType;
+        private final String name;
+
+        private int members;
+        private int advancers;
+        private int decliners;
+        private int unchanged;
+        // Day's high/low beyond the earlier sessions of the producer's ~100 session series
+        private int newPeriodHighs;
+        private int newPeriodLows;
+        private long totalVolume;
+
+        // Price-weighted change: sum(change) / sum(prevClose)
+        private int pricedMembers;
+        private double sumChange;
+        private double sumPrevClose;
+
+        // Equal-weighted change: average of changePercent
+        private int percentMembers;
+        private double sumChangePercent;
+
+        GroupStats(String id) {
+            int sep = id.indexOf(':');
+            this.id = id;
+            this.groupType = id.substring(0, sep);
+            this.name = id.substring(sep + 1);
+        }
+
+        void accumulate(Contribution c, int sign) {
+            members += sign;
+
+            if (c.change() != null) {
+                if (c.change() > 0) advancers += sign;
+                else if (c.change() < 0) decliners += sign;
+                else unchanged += sign;
+            }
+            if (c.newPeriodHigh()) newPeriodHighs += sign;
+            if (c.newPeriodLow()) newPeriodLows += sign;
+            if (c.volume() != null) totalVolume += sign * c.volume();
+
+            if (c.change() != null && c.prevClose() != null) {
+                pricedMembers += sign;
+                sumChange += sign * c.change();
+                sumPrevClose += sign * c.prevClose();
+            }
+            if (c.changePercent() != null) {
+                percentMembers += sign;
+                sumChangePercent += sign * c.changePercent();
+            }
+
+            // Drop accumulated floating point error once nothing is left to sum
+            if (pricedMembers == 0) {
+                sumChange = 0;
+                sumPrevClose = 0;
+            }
+            if (percentMembers == 0) {
+                sumChangePercent = 0;
+            }
+        }
+
+        Document toDocument(Date updatedAt) {
+            Double weightedChangePercent = pricedMembers > 0 && sumPrevClose != 0
+                    ? sumChange / sumPrevClose * 100
+                    : null;
+            Double averageChangePercent = percentMembers > 0
+                    ? sumChangePercent / percentMembers
+                    : null;
+
+            return new Document("_id", id)
+                    .append("groupType", groupType)
+                    .append("name", name)
+                    .append("members", members)
+                    .append("advancers", advancers)
+                    .append("decliners", decliners)
+                    .append("unchanged", unchanged)
+                    .append("newPeriodHighs", newPeriodHighs)
+                    .append("newPeriodLows", newPeriodLows)
+                    .append("totalVolume", totalVolume)
+                    .append("weightedChangePercent", weightedChangePercent)
+                    .append("averageChangePercent", averageChangePercent)
+                    .append("updatedAt", updatedAt);
+        }
+    }
+}
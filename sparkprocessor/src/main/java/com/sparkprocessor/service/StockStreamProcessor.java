@@ -1,23 +1,81 @@
 package com.sparkprocessor.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.model.ReplaceOptions;
+import org.apache.kafka.clients.admin.*;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
 import org.apache.spark.sql.*;
 import org.apache.spark.sql.streaming.StreamingQuery;
+import org.apache.spark.sql.streaming.StreamingQueryException;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
 import org.bson.Document;
 
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static org.apache.spark.sql.functions.*;
 
 public class StockStreamProcessor {
 
+    private static final String BOOTSTRAP = "localhost:9092";
+
+    // Fail fast when Mongo is down instead of stalling each batch for the 30s default
+    private static final String MONGO_URI = "mongodb://localhost:27017/?serverSelectionTimeoutMS=2000";
+
+    // Log-compacted topic holding the latest dashboard state per symbol (key = symbol)
+    private static final String LATEST_TOPIC = "stock-latest";
+
+    // Roll segments hourly and clean once 10% of the log is dirty, so the topic stays close to
+    // one record per symbol and consumers warm up quickly
+    private static final Map<String, String> LATEST_TOPIC_CONFIGS = Map.of(
+            TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT,
+            TopicConfig.SEGMENT_MS_CONFIG, String.valueOf(Duration.ofHours(1).toMillis()),
+            TopicConfig.MIN_CLEANABLE_DIRTY_RATIO_CONFIG, "0.1"
+    );
+
+    // updatedAt format in stock-latest values (ISO-8601 with offset, readable as an Instant)
+    private static final String ISO_TIMESTAMP = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    // Pause before a failed query is restarted from its checkpoint
+    private static final long RESTART_BACKOFF_MS = 10_000;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // Sector / index / market breadth, updated per tick on the driver
+    private static final MarketBreadthAggregator breadth = new MarketBreadthAggregator();
+
+    // Whether breadth and the latest-state topic have been seeded from stockDashboard yet
+    private static boolean bootstrapped;
+
     public static void main(String[] args) throws Exception {
 
         SparkSession spark = SparkSession.builder()
@@ -26,10 +84,16 @@ public class StockStreamProcessor {
 
         spark.sparkContext().setLogLevel("WARN");
 
+        // 0) Make sure the latest-state topic exists and is compacted
+        ensureLatestTopic();
+
+        // Seed breadth and the latest-state topic from the dashboard; retried per batch if Mongo is down
+        bootstrapFromDashboard();
+
         // 1) Kafka source
         Dataset<Row> kafkaDf = spark.readStream()
                 .format("kafka")
-                .option("kafka.bootstrap.servers", "localhost:9092")
+                .option("kafka.bootstrap.servers", BOOTSTRAP)
                 .option("subscribe", "stock-data")
                 .option("startingOffsets", "earliest")
                 .load();
@@ -40,8 +104,14 @@ public class StockStreamProcessor {
                 .add("date", DataTypes.StringType)
                 .add("open", DataTypes.DoubleType)
                 .add("close", DataTypes.DoubleType)
+                .add("high", DataTypes.DoubleType)
+                .add("low", DataTypes.DoubleType)
                 .add("volume", DataTypes.LongType)
                 .add("prevClose", DataTypes.DoubleType)
+                .add("periodHigh", DataTypes.DoubleType)
+                .add("periodLow", DataTypes.DoubleType)
+                .add("sector", DataTypes.StringType)
+                .add("indices", DataTypes.createArrayType(DataTypes.StringType))
                 .add("fetchedAt", DataTypes.StringType);
 
         Dataset<Row> jsonDf = kafkaDf
@@ -61,105 +131,438 @@ public class StockStreamProcessor {
                         when(col("prevClose").isNotNull(),
                                 col("change").divide(col("prevClose")).multiply(100))
                                 .otherwise(lit(null)))
+                // the day's high/low against the earlier sessions of the fetched (~100 session) series
+                .withColumn("newPeriodHigh",
+                        coalesce(col("high").gt(col("periodHigh")), lit(false)))
+                .withColumn("newPeriodLow",
+                        coalesce(col("low").lt(col("periodLow")), lit(false)))
                 .withColumn("ingestedAt", current_timestamp());
 
-        // 4) Write to Mongo via foreachBatch
-        StreamingQuery query = stockWithMetrics.writeStream()
+        // 4a) Latest state per symbol to the compacted stock-latest topic, keyed by symbol.
+        //     A query of its own with its own checkpoint, so it keeps running while Mongo is down.
+        Dataset<Row> latestState = stockWithMetrics.select(
+                col("symbol").alias("key"),
+                to_json(struct(
+                        col("symbol"),
+                        col("date").alias("latestDate"),
+                        col("close").alias("todayPrice"),
+                        col("change").alias("priceChange"),
+                        col("changePercent"),
+                        col("volume"),
+                        col("prevClose"),
+                        col("sector"),
+                        col("indices"),
+                        col("newPeriodHigh"),
+                        col("newPeriodLow"),
+                        col("fetchedAt"),
+                        date_format(col("ingestedAt"), ISO_TIMESTAMP).alias("updatedAt")
+                )).alias("value"));
+
+        Map<String, QueryStarter> starters = new LinkedHashMap<>();
+        starters.put("stock-latest", () -> latestState.writeStream()
+                .format("kafka")
+                .outputMode("append")
+                .option("kafka.bootstrap.servers", BOOTSTRAP)
+                .option("topic", LATEST_TOPIC)
+                .option("checkpointLocation", "/tmp/spark-stock-latest-checkpoint")
+                .start());
+
+        // 4b) Write to Mongo via foreachBatch
+        starters.put("mongo", () -> stockWithMetrics.writeStream()
                 .outputMode("append")
                 .option("checkpointLocation", "/tmp/spark-stock-checkpoint")
                 .foreachBatch((batchDf, batchId) -> {
+                    writeBatch(batchDf, batchId);
+                })
+                .start());
+
+        runSupervised(spark, starters);
+    }
+
+    private interface QueryStarter {
+        StreamingQuery start() throws Exception;
+    }
+
+    /**
+     * Runs the queries until the process is stopped. A query that fails is restarted from its own
+     * checkpoint, which replays the batch it failed on, while the other one keeps running.
+     */
+    private static void runSupervised(SparkSession spark, Map<String, QueryStarter> starters) throws Exception {
+        Map<String, StreamingQuery> queries = new LinkedHashMap<>();
+        for (Map.Entry<String, QueryStarter> e : starters.entrySet()) {
+            queries.put(e.getKey(), e.getValue().start());
+        }
+
+        while (true) {
+            try {
+                spark.streams().awaitAnyTermination(RESTART_BACKOFF_MS);
+            } catch (StreamingQueryException e) {
+                // reported per query below
+            }
+            spark.streams().resetTerminated();
+
+            for (Map.Entry<String, StreamingQuery> e : queries.entrySet()) {
+                StreamingQuery query = e.getValue();
+                if (query.isActive()) continue;
+
+                String reason = query.exception().isDefined() ? query.exception().get().getMessage() : "stopped";
+                System.err.println("Query " + e.getKey() + " terminated, restarting from checkpoint: " + reason);
+                try {
+                    e.setValue(starters.get(e.getKey()).start());
+                } catch (Exception ex) {
+                    // left inactive, tried again on the next round
+                    System.err.println("Could not restart query " + e.getKey() + ": " + ex);
+                }
+            }
+        }
+    }
+
+    private static void writeBatch(Dataset<Row> batchDf, Long batchId) throws Exception {
+
+        System.out.println("Processing batch: " + batchId);
+
+        if (!bootstrapped) {
+            bootstrapFromDashboard();
+        }
+
+        batchDf.persist();
+
+        if (batchDf.isEmpty()) {
+            batchDf.unpersist();
+            return;
+        }
+
+        try {
+            List<Row> rows = batchDf.collectAsList();
+
+            List<Document> rawDocs = new ArrayList<>();
+            Map<String, Document> latestPerSymbol = new HashMap<>();
+
+            for (Row row : rows) {
+                String symbol = row.getAs("symbol");
+                String date = row.getAs("date");
+
+                Double open = getDouble(row, "open");
+                Double close = getDouble(row, "close");
+                Long volume = getLong(row, "volume");
+                Double prevClose = getDouble(row, "prevClose");
+                Double change = getDouble(row, "change");
+                Double changePercent = getDouble(row, "changePercent");
+                String sector = row.getAs("sector");
+                List<String> indices = getStringList(row, "indices");
+                boolean newPeriodHigh = row.getAs("newPeriodHigh");
+                boolean newPeriodLow = row.getAs("newPeriodLow");
+                String fetchedAt = row.getAs("fetchedAt");
+                Timestamp ingestedAt = row.getAs("ingestedAt");
+
+                // ----- stockRaw document -----
+                // Deterministic _id, so replaying a failed batch doesn't store the record twice
+                Document rawDoc = new Document("_id", symbol + ":" + date + ":" + fetchedAt)
+                        .append("symbol", symbol)
+                        .append("date", date)
+                        .append("open", open)
+                        .append("close", close)
+                        .append("volume", volume)
+                        .append("prevClose", prevClose)
+                        .append("change", change)
+                        .append("changePercent", changePercent)
+                        .append("fetchedAt", fetchedAt)
+                        .append("ingestedAt", ingestedAt);
+
+                rawDocs.add(rawDoc);
+
+                Document dashDoc = new Document("symbol", symbol)
+                        .append("latestDate", date)
+                        .append("todayPrice", close)
+                        .append("priceChange", change)
+                        .append("changePercent", changePercent)
+                        .append("volume", volume)
+                        .append("prevClose", prevClose)
+                        .append("sector", sector)
+                        .append("indices", indices)
+                        .append("newPeriodHigh", newPeriodHigh)
+                        .append("newPeriodLow", newPeriodLow)
+                        .append("fetchedAt", fetchedAt)
+                        .append("updatedAt", ingestedAt);
+
+                breadth.apply(new MarketBreadthAggregator.Contribution(
+                        symbol, date, sector, indices, volume, change, prevClose,
+                        changePercent, newPeriodHigh, newPeriodLow));
+
+                Document existing = latestPerSymbol.get(symbol);
+                if (existing == null) {
+                    latestPerSymbol.put(symbol, dashDoc);
+                } else {
+                    String existingDate = existing.getString("latestDate");
+                    if (existingDate == null || date.compareTo(existingDate) >= 0) {
+                        latestPerSymbol.put(symbol, dashDoc);
+                    }
+                }
+            }
 
-                    System.out.println("Processing batch: " + batchId);
+            // a Mongo failure fails the batch; the query is restarted and replays it
+            writeMongo(rawDocs, latestPerSymbol.values());
 
-                    batchDf.persist();
+        } finally {
+            batchDf.unpersist();
+        }
+    }
 
-                    if (batchDf.isEmpty()) {
-                        batchDf.unpersist();
-                        return;
+    private static void ensureLatestTopic() throws InterruptedException {
+        Properties props = new Properties();
+        props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP);
+
+        NewTopic topic = new NewTopic(LATEST_TOPIC, 1, (short) 1).configs(LATEST_TOPIC_CONFIGS);
+
+        try (Admin admin = Admin.create(props)) {
+            try {
+                admin.createTopics(List.of(topic)).all().get();
+                return;
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof TopicExistsException)) {
+                    throw new IllegalStateException("Could not create topic " + LATEST_TOPIC, e.getCause());
+                }
+            }
+
+            // The topic may have been auto-created with cleanup.policy=delete, which would expire
+            // the state of quiet symbols. Bring its config in line or refuse to start.
+            ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, LATEST_TOPIC);
+            try {
+                Config current = admin.describeConfigs(List.of(resource)).all().get().get(resource);
+
+                List<AlterConfigOp> ops = new ArrayList<>();
+                for (Map.Entry<String, String> wanted : LATEST_TOPIC_CONFIGS.entrySet()) {
+                    ConfigEntry entry = current.get(wanted.getKey());
+                    if (entry == null || !wanted.getValue().equals(entry.value())) {
+                        ops.add(new AlterConfigOp(new ConfigEntry(wanted.getKey(), wanted.getValue()), AlterConfigOp.OpType.SET));
                     }
+                }
+
+                if (!ops.isEmpty()) {
+                    System.out.println("Updating config of topic " + LATEST_TOPIC + ": " + ops);
+                    admin.incrementalAlterConfigs(Map.of(resource, ops)).all().get();
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Topic " + LATEST_TOPIC + " is not set up for compaction and could not be reconfigured", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Seeds breadth from stockDashboard and publishes dashboard state for any symbol the
+     * latest-state topic is missing or has an older state for (first deploy, or symbols that
+     * haven't ticked since). Best-effort: on failure it is retried with the next batch.
+     */
+    private static void bootstrapFromDashboard() {
+        try (MongoClient mongoClient = MongoClients.create(MONGO_URI)) {
+            MongoDatabase db = mongoClient.getDatabase("stockdb");
+            List<Document> dashDocs = db.getCollection("stockDashboard").find().into(new ArrayList<>());
+
+            breadth.seed(dashDocs);
+
+            Map<String, LatestState> inTopic = readLatestTopic();
+            List<Document> stale = new ArrayList<>();
+            for (Document dashDoc : dashDocs) {
+                LatestState current = inTopic.get(dashDoc.getString("symbol"));
+                if (current == null || current.olderThan(LatestState.of(dashDoc))) {
+                    stale.add(dashDoc);
+                }
+            }
+            try (Producer<String, String> producer = createLatestProducer()) {
+                publishLatest(producer, stale);
+            }
+
+            bootstrapped = true;
+            System.out.println("Seeded " + dashDocs.size() + " symbols from stockDashboard, published "
+                    + stale.size() + " to " + LATEST_TOPIC);
+
+            writeBreadth(db.getCollection("marketBreadth"));
+        } catch (Exception e) {
+            System.err.println("Could not seed from stockDashboard, retrying next batch: " + e);
+        }
+    }
 
-                    try (MongoClient mongoClient = MongoClients.create("mongodb://localhost:27017")) {
-                        MongoDatabase db = mongoClient.getDatabase("stockdb");
-                        MongoCollection<Document> rawCol = db.getCollection("stockRaw");
-                        MongoCollection<Document> dashboardCol = db.getCollection("stockDashboard");
-
-                        List<Row> rows = batchDf.collectAsList();
-
-                        List<Document> rawDocs = new ArrayList<>();
-                        Map<String, Document> latestPerSymbol = new HashMap<>();
-
-                        for (Row row : rows) {
-                            String symbol = row.getAs("symbol");
-                            String date = row.getAs("date");
-
-                            Double open = getDouble(row, "open");
-                            Double close = getDouble(row, "close");
-                            Long volume = getLong(row, "volume");
-                            Double prevClose = getDouble(row, "prevClose");
-                            Double change = getDouble(row, "change");
-                            Double changePercent = getDouble(row, "changePercent");
-                            String fetchedAt = row.getAs("fetchedAt");
-                            Timestamp ingestedAt = row.getAs("ingestedAt");
-
-                            // ----- stockRaw document -----
-                            Document rawDoc = new Document("symbol", symbol)
-                                    .append("date", date)
-                                    .append("open", open)
-                                    .append("close", close)
-                                    .append("volume", volume)
-                                    .append("prevClose", prevClose)
-                                    .append("change", change)
-                                    .append("changePercent", changePercent)
-                                    .append("fetchedAt", fetchedAt)
-                                    .append("ingestedAt", ingestedAt);
-
-                            rawDocs.add(rawDoc);
-
-                            Document dashDoc = new Document("symbol", symbol)
-                                    .append("latestDate", date)
-                                    .append("todayPrice", close)
-                                    .append("priceChange", change)
-                                    .append("changePercent", changePercent)
-                                    .append("volume", volume)
-                                    .append("prevClose", prevClose)
-                                    .append("fetchedAt", fetchedAt)
-                                    .append("updatedAt", ingestedAt);
-
-                            Document existing = latestPerSymbol.get(symbol);
-                            if (existing == null) {
-                                latestPerSymbol.put(symbol, dashDoc);
-                            } else {
-                                String existingDate = existing.getString("latestDate");
-                                if (existingDate == null || date.compareTo(existingDate) >= 0) {
-                                    latestPerSymbol.put(symbol, dashDoc);
-                                }
-                            }
-                        }
-
-                        // bulk insert raw records
-                        if (!rawDocs.isEmpty()) {
-                            rawCol.insertMany(rawDocs);
-                        }
-
-                        // upsert dashboard per symbol
-                        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
-                        for (Document dashDoc : latestPerSymbol.values()) {
-                            String symbol = dashDoc.getString("symbol");
-                            dashboardCol.replaceOne(
-                                    new Document("symbol", symbol),
-                                    dashDoc,
-                                    upsert
-                            );
-                        }
-
-                    } finally {
-                        batchDf.unpersist();
+    // Reads the compacted topic up to its current end: latest date / update time per symbol
+    private static Map<String, LatestState> readLatestTopic() throws Exception {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+
+        Map<String, LatestState> latest = new HashMap<>();
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo info : consumer.partitionsFor(LATEST_TOPIC, Duration.ofSeconds(10))) {
+                partitions.add(new TopicPartition(info.topic(), info.partition()));
+            }
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions, Duration.ofSeconds(10));
+
+            long deadline = System.currentTimeMillis() + Duration.ofMinutes(1).toMillis();
+            while (!caughtUp(consumer, end)) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Timed out reading " + LATEST_TOPIC);
+                }
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(500))) {
+                    if (record.key() == null) continue;
+                    if (record.value() == null) {
+                        latest.remove(record.key());
+                        continue;
                     }
+                    JsonNode state = mapper.readTree(record.value());
+                    String updatedAt = state.path("updatedAt").asText(null);
+                    latest.put(record.key(), new LatestState(
+                            state.path("latestDate").asText(null),
+                            updatedAt == null ? null : Instant.parse(updatedAt)));
+                }
+            }
+        }
+        return latest;
+    }
 
-                })
-                .start();
+    private static boolean caughtUp(KafkaConsumer<String, String> consumer, Map<TopicPartition, Long> end) {
+        for (Map.Entry<TopicPartition, Long> e : end.entrySet()) {
+            if (consumer.position(e.getKey()) < e.getValue()) return false;
+        }
+        return true;
+    }
+
+    private static Producer<String, String> createLatestProducer() {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        return new KafkaProducer<>(props);
+    }
+
+    // Publishes dashboard documents read from Mongo to stock-latest; only used when seeding
+    private static void publishLatest(Producer<String, String> producer, Collection<Document> dashDocs) throws Exception {
+        List<Future<RecordMetadata>> sends = new ArrayList<>(dashDocs.size());
+        for (Document dashDoc : dashDocs) {
+            Map<String, Object> state = new LinkedHashMap<>(dashDoc);
+            state.remove("_id");
+            Date updatedAt = dashDoc.getDate("updatedAt");
+            state.put("updatedAt", updatedAt == null ? null : updatedAt.toInstant().toString());
+
+            String symbol = dashDoc.getString("symbol");
+            sends.add(producer.send(new ProducerRecord<>(LATEST_TOPIC, symbol, mapper.writeValueAsString(state))));
+        }
+        producer.flush();
+
+        // surface any send that failed, so seeding is retried
+        for (Future<RecordMetadata> send : sends) {
+            send.get();
+        }
+    }
+
+    /**
+     * Writes one batch to stockRaw, stockDashboard and marketBreadth. Each collection is attempted
+     * even if another one failed; any failure is then rethrown so the batch is replayed.
+     * Documents Mongo rejects outright would fail every replay, so those are logged and dropped.
+     */
+    private static void writeMongo(List<Document> rawDocs, Collection<Document> dashDocs) {
+        try (MongoClient mongoClient = MongoClients.create(MONGO_URI)) {
+            MongoDatabase db = mongoClient.getDatabase("stockdb");
+
+            List<MongoException> failures = new ArrayList<>();
+            try {
+                writeRaw(db.getCollection("stockRaw"), rawDocs);
+            } catch (MongoException e) {
+                failures.add(e);
+            }
+            try {
+                writeDashboard(db.getCollection("stockDashboard"), dashDocs);
+            } catch (MongoException e) {
+                failures.add(e);
+            }
+            try {
+                // upsert only the breadth groups changed since they were last written
+                writeBreadth(db.getCollection("marketBreadth"));
+            } catch (MongoException e) {
+                failures.add(e);
+            }
+
+            if (!failures.isEmpty()) {
+                MongoException first = failures.get(0);
+                for (int i = 1; i < failures.size(); i++) first.addSuppressed(failures.get(i));
+                throw first;
+            }
+        }
+    }
+
+    private static void writeRaw(MongoCollection<Document> rawCol, List<Document> rawDocs) {
+        if (rawDocs.isEmpty()) return;
+
+        try {
+            rawCol.insertMany(rawDocs, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // A duplicate key is a record an earlier attempt of this batch already stored
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    System.err.println("Dropping stockRaw record " + rawDocs.get(error.getIndex()).get("_id")
+                            + ": " + error.getMessage());
+                }
+            }
+            if (e.getWriteConcernError() != null) throw e;
+        }
+    }
+
+    private static void writeDashboard(MongoCollection<Document> dashboardCol, Collection<Document> dashDocs) {
+        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+        for (Document dashDoc : dashDocs) {
+            String symbol = dashDoc.getString("symbol");
+            try {
+                dashboardCol.replaceOne(
+                        new Document("symbol", symbol),
+                        dashDoc,
+                        upsert
+                );
+            } catch (MongoWriteException e) {
+                System.err.println("Dropping stockDashboard update for " + symbol + ": " + e.getError().getMessage());
+            }
+        }
+    }
+
+    private static void writeBreadth(MongoCollection<Document> breadthCol) {
+        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+        for (Document groupDoc : breadth.pendingWrites(new Date())) {
+            try {
+                breadthCol.replaceOne(
+                        new Document("_id", groupDoc.get("_id")),
+                        groupDoc,
+                        upsert
+                );
+            } catch (MongoWriteException e) {
+                System.err.println("Dropping marketBreadth update for " + groupDoc.get("_id") + ": " + e.getError().getMessage());
+            }
+            breadth.written(groupDoc);
+        }
+    }
+
+    private static List<String> getStringList(Row row, String field) {
+        int idx = row.fieldIndex(field);
+        if (row.isNullAt(idx)) return new ArrayList<>();
+        return new ArrayList<>(row.<String>getList(idx));
+    }
+
+    // Latest date and update time of a symbol's state, used to tell which of two states is newer
+    private record LatestState(String latestDate, Instant updatedAt) {
+
+        static LatestState of(Document dashDoc) {
+            Date updatedAt = dashDoc.getDate("updatedAt");
+            return new LatestState(dashDoc.getString("latestDate"), updatedAt == null ? null : updatedAt.toInstant());
+        }
 
-        query.awaitTermination();
+        boolean olderThan(LatestState other) {
+            int byDate = Objects.compare(latestDate, other.latestDate, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+            if (byDate != 0) return byDate < 0;
+            return Objects.compare(updatedAt, other.updatedAt, Comparator.nullsFirst(Comparator.<Instant>naturalOrder())) < 0;
+        }
     }
 
     private static Double getDouble(Row row, String field) {
@@ -0,0 +1,158 @@
+package com.sparkprocessor.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static com.sparkprocessor.service.MarketBreadthAggregator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketBreadthAggregatorTests {
+
+    private final MarketBreadthAggregator breadth = new MarketBreadthAggregator();
+
+    private static Contribution tick(String symbol, String date, String sector, List<String> indices,
+                                     Double change, Double prevClose, long volume) {
+        Double changePercent = change == null || prevClose == null ? null : change / prevClose * 100;
+        return new Contribution(symbol, date, sector, indices, volume, change, prevClose,
+                changePercent, false, false);
+    }
+
+    private Document market() {
+        return breadth.group(MARKET, ALL);
+    }
+
+    @Test
+    void repeatedTickLeavesCountsUnchanged() {
+        Contribution aapl = tick("AAPL", "2024-01-02", "Technology", List.of("SP500"), 2.0, 100.0, 1000);
+        breadth.apply(aapl);
+        Document first = market();
+
+        breadth.apply(aapl);
+
+        assertEquals(first, market());
+        assertEquals(1, market().getInteger("members"));
+        assertEquals(1, market().getInteger("advancers"));
+        assertEquals(1000L, market().getLong("totalVolume"));
+        assertEquals(1, breadth.group(INDEX, "SP500").getInteger("members"));
+    }
+
+    @Test
+    void sectorAndIndexChangeMovesSymbolBetweenGroups() {
+        breadth.apply(tick("AAPL", "2024-01-02", "Technology", List.of("SP500"), 2.0, 100.0, 1000));
+        breadth.apply(tick("AAPL", "2024-01-02", "Financials", List.of("DJIA"), -1.0, 100.0, 500));
+
+        assertEquals(0, breadth.group(SECTOR, "Technology").getInteger("members"));
+        assertEquals(0, breadth.group(SECTOR, "Technology").getInteger("advancers"));
+        assertEquals(0L, breadth.group(SECTOR, "Technology").getLong("totalVolume"));
+        assertEquals(0, breadth.group(INDEX, "SP500").getInteger("members"));
+
+        Document financials = breadth.group(SECTOR, "Financials");
+        assertEquals(1, financials.getInteger("members"));
+        assertEquals(1, financials.getInteger("decliners"));
+        assertEquals(500L, financials.getLong("totalVolume"));
+        assertEquals(1, breadth.group(INDEX, "DJIA").getInteger("members"));
+        assertEquals(1, market().getInteger("members"));
+    }
+
+    @Test
+    void olderTickIsIgnored() {
+        assertTrue(breadth.apply(tick("AAPL", "2024-01-02", "Technology", List.of(), 2.0, 100.0, 1000)));
+        assertFalse(breadth.apply(tick("AAPL", "2024-01-01", "Technology", List.of(), -5.0, 100.0, 9000)));
+
+        assertEquals(1, market().getInteger("advancers"));
+        assertEquals(0, market().getInteger("decliners"));
+        assertEquals(1000L, market().getLong("totalVolume"));
+        assertEquals(2.0, market().getDouble("weightedChangePercent"), 1e-9);
+    }
+
+    @Test
+    void nullChangeIsExcludedFromPercentages() {
+        breadth.apply(tick("AAPL", "2024-01-02", "Technology", List.of(), 1.0, 100.0, 1000));
+        breadth.apply(tick("MSFT", "2024-01-02", "Technology", List.of(), null, null, 2000));
+
+        Document tech = breadth.group(SECTOR, "Technology");
+        assertEquals(2, tech.getInteger("members"));
+        assertEquals(1, tech.getInteger("advancers"));
+        assertEquals(0, tech.getInteger("decliners"));
+        assertEquals(0, tech.getInteger("unchanged"));
+        assertEquals(3000L, tech.getLong("totalVolume"));
+        assertEquals(1.0, tech.getDouble("weightedChangePercent"), 1e-9);
+        assertEquals(1.0, tech.getDouble("averageChangePercent"), 1e-9);
+    }
+
+    @Test
+    void emptiedGroupResetsItsSums() {
+        breadth.apply(tick("AAPL", "2024-01-02", "Technology", List.of(), 0.1, 0.3, 1000));
+        breadth.apply(tick("MSFT", "2024-01-02", "Technology", List.of(), 0.2, 0.7, 1000));
+        breadth.apply(tick("AAPL", "2024-01-02", "Financials", List.of(), 0.1, 0.3, 1000));
+        breadth.apply(tick("MSFT", "2024-01-02", "Financials", List.of(), 0.2, 0.7, 1000));
+
+        Document tech = breadth.group(SECTOR, "Technology");
+        assertEquals(0, tech.getInteger("members"));
+        assertNull(tech.get("weightedChangePercent"));
+        assertNull(tech.get("averageChangePercent"));
+
+        // Leftover floating point error would show up in an exact comparison
+        breadth.apply(tick("NVDA", "2024-01-02", "Technology", List.of(), 0.0, 50.0, 1000));
+        tech = breadth.group(SECTOR, "Technology");
+        assertEquals(0.0, tech.getDouble("weightedChangePercent"), 0.0);
+        assertEquals(0.0, tech.getDouble("averageChangePercent"), 0.0);
+    }
+
+    @Test
+    void seedHandlesLegacyDocsWithoutSectorOrIndices() {
+        Document legacy = new Document("symbol", "AAPL")
+                .append("latestDate", "2024-01-02")
+                .append("todayPrice", 102.0)
+                .append("priceChange", 2.0)
+                .append("changePercent", 2.0)
+                .append("volume", 1000)
+                .append("prevClose", 100.0);
+
+        breadth.seed(List.of(legacy));
+
+        assertEquals(1, market().getInteger("members"));
+        assertEquals(1, market().getInteger("advancers"));
+        assertEquals(1000L, market().getLong("totalVolume"));
+        assertEquals(0, market().getInteger("newPeriodHighs"));
+        assertEquals(1, breadth.group(SECTOR, "Unknown").getInteger("members"));
+        assertNull(breadth.group(INDEX, "SP500"));
+    }
+
+    @Test
+    void seedDoesNotOverrideSymbolsThatAlreadyTicked() {
+        breadth.apply(tick("AAPL", "2024-01-02", "Technology", List.of(), 2.0, 100.0, 1000));
+
+        breadth.seed(List.of(new Document("symbol", "AAPL")
+                .append("latestDate", "2024-01-02")
+                .append("sector", "Technology")
+                .append("priceChange", -3.0)
+                .append("prevClose", 100.0)
+                .append("volume", 5000L)));
+
+        assertEquals(1, market().getInteger("advancers"));
+        assertEquals(0, market().getInteger("decliners"));
+        assertEquals(1000L, market().getLong("totalVolume"));
+    }
+
+    @Test
+    void groupsStayPendingUntilWritten() {
+        breadth.apply(tick("AAPL", "2024-01-02", "Technology", List.of("SP500"), 2.0, 100.0, 1000));
+
+        List<Document> pending = breadth.pendingWrites(new Date());
+        assertEquals(3, pending.size());
+
+        // nothing written, e.g. Mongo was down
+        assertEquals(3, breadth.pendingWrites(new Date()).size());
+
+        breadth.written(pending.get(0));
+        assertEquals(2, breadth.pendingWrites(new Date()).size());
+
+        pending.forEach(breadth::written);
+        assertTrue(breadth.pendingWrites(new Date()).isEmpty());
+        assertFalse(breadth.hasPendingWrites());
+    }
+}